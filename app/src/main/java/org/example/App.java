@@ -3,12 +3,89 @@
  */
 package org.example;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
 public class App {
+
+    private static final int PORT_PAR_DEFAUT = 7070;
+    private static final int COMPTES_PAR_DEFAUT = 1000;
+    private static final int PROFONDEUR_PAR_DEFAUT = 16;
+    private static final int[] CONNEXIONS_BENCH = {1, 100, 1000};
+
     public String getGreeting() {
         return "Hello World!";
     }
 
-    public static void main(String[] args) {
-        System.out.println(new App().getGreeting());
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println(new App().getGreeting());
+            System.out.println("Usage : serveur [port] [comptes] [hote d'écoute, boucle locale par défaut]");
+            System.out.println("        charge <hote> <port> <connexions> [profondeur] [durée s] [comptes]");
+            System.out.println("        bench [durée s]");
+            return;
+        }
+        switch (args[0]) {
+            case "serveur":
+                InetAddress hote = args.length > 3 ? InetAddress.getByName(args[3]) : InetAddress.getLoopbackAddress();
+                lancerServeur(new InetSocketAddress(hote, entier(args, 1, PORT_PAR_DEFAUT)),
+                              entier(args, 2, COMPTES_PAR_DEFAUT));
+                break;
+            case "charge":
+                if (args.length < 4) {
+                    throw new IllegalArgumentException("Usage : charge <hote> <port> <connexions> [profondeur] [durée s] [comptes]");
+                }
+                ClientCharge client = new ClientCharge(
+                        new InetSocketAddress(args[1], Integer.parseInt(args[2])),
+                        Integer.parseInt(args[3]),
+                        entier(args, 4, PROFONDEUR_PAR_DEFAUT),
+                        entier(args, 6, COMPTES_PAR_DEFAUT));
+                System.out.println(client.executer(entier(args, 5, 10) * 1000L));
+                break;
+            case "bench":
+                lancerBench(entier(args, 1, 5));
+                break;
+            default:
+                throw new IllegalArgumentException("Commande inconnue : " + args[0]);
+        }
+    }
+
+    static ServeurComptes creerServeur(int nombreComptes) {
+        ServeurComptes serveur = new ServeurComptes();
+        for (int numero = 1; numero <= nombreComptes; numero++) {
+            Titulaire titulaire = new Titulaire("Client", String.valueOf(numero), "");
+            serveur.ajouterCompte(new Compte(numero, titulaire));
+        }
+        return serveur;
+    }
+
+    private static void lancerServeur(InetSocketAddress adresse, int nombreComptes)
+            throws IOException, InterruptedException {
+        ServeurComptes serveur = creerServeur(nombreComptes);
+        serveur.demarrer(adresse);
+        System.out.println("Serveur de comptes à l'écoute sur " + adresse.getHostString() + ":" + serveur.getPort()
+                           + " (" + nombreComptes + " comptes)");
+        serveur.attendreArret();
+    }
+
+    /**
+     * Mesure le serveur sur la boucle locale à 1, 100 et 1 000 connexions,
+     * après une seconde de chauffe pour chaque palier.
+     */
+    private static void lancerBench(int dureeSecondes) throws Exception {
+        try (ServeurComptes serveur = creerServeur(COMPTES_PAR_DEFAUT)) {
+            serveur.demarrer(0);
+            InetSocketAddress adresse = new InetSocketAddress(InetAddress.getLoopbackAddress(), serveur.getPort());
+            for (int connexions : CONNEXIONS_BENCH) {
+                ClientCharge client = new ClientCharge(adresse, connexions, PROFONDEUR_PAR_DEFAUT, COMPTES_PAR_DEFAUT);
+                client.executer(1000);
+                System.out.println(client.executer(dureeSecondes * 1000L));
+            }
+        }
+    }
+
+    private static int entier(String[] args, int index, int parDefaut) {
+        return args.length > index ? Integer.parseInt(args[index]) : parDefaut;
     }
 }
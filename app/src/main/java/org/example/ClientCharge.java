@@ -0,0 +1,255 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Générateur de charge pour {@link ServeurComptes}.
+ *
+ * <p>Ouvre un nombre donné de connexions et garde sur chacune jusqu'à
+ * {@code profondeur} requêtes en vol (pipelining), avec un mélange aléatoire
+ * de crédits, débits, virements et consultations de solde sur les comptes
+ * numérotés de 1 à {@code nombreComptes}. La latence est mesurée entre la mise
+ * en file d'une requête et la lecture de sa réponse.
+ */
+public class ClientCharge {
+
+    private final InetSocketAddress adresse;
+    private final int connexions;
+    private final int profondeur;
+    private final int nombreComptes;
+
+    public ClientCharge(InetSocketAddress adresse, int connexions, int profondeur, int nombreComptes) {
+        if (connexions <= 0) {
+            throw new IllegalArgumentException("Le nombre de connexions doit être strictement positif");
+        }
+        if (profondeur <= 0) {
+            throw new IllegalArgumentException("La profondeur de pipeline doit être strictement positive");
+        }
+        if (nombreComptes < 2) {
+            throw new IllegalArgumentException("Il faut au moins deux comptes pour les virements");
+        }
+        this.adresse = adresse;
+        this.connexions = connexions;
+        this.profondeur = profondeur;
+        this.nombreComptes = nombreComptes;
+    }
+
+    public Resultat executer(long dureeMillis) throws IOException {
+        List<Connexion> ouvertes = new ArrayList<>(connexions);
+        Latences latences = new Latences();
+        long refus = 0;
+        try (Selector selecteur = Selector.open()) {
+            for (int i = 0; i < connexions; i++) {
+                Connexion connexion = new Connexion(i);
+                ouvertes.add(connexion);
+                connexion.canal.register(selecteur, SelectionKey.OP_READ, connexion);
+            }
+
+            long debut = System.nanoTime();
+            long fin = debut + dureeMillis * 1_000_000L;
+            for (Connexion connexion : ouvertes) {
+                connexion.remplir(debut);
+                connexion.envoyer(selecteur);
+            }
+
+            long maintenant = debut;
+            while (maintenant < fin) {
+                selecteur.select(Math.max(1, (fin - maintenant) / 1_000_000L));
+                Iterator<SelectionKey> cles = selecteur.selectedKeys().iterator();
+                while (cles.hasNext()) {
+                    SelectionKey cle = cles.next();
+                    cles.remove();
+                    Connexion connexion = (Connexion) cle.attachment();
+                    if (cle.isReadable()) {
+                        if (connexion.canal.read(connexion.entree) < 0) {
+                            throw new IOException("Connexion fermée par le serveur");
+                        }
+                        refus += connexion.recevoir(System.nanoTime(), latences);
+                        connexion.remplir(System.nanoTime());
+                    }
+                    connexion.envoyer(selecteur);
+                }
+                maintenant = System.nanoTime();
+            }
+            return new Resultat(connexions, profondeur, latences, refus, maintenant - debut);
+        } finally {
+            for (Connexion connexion : ouvertes) {
+                connexion.canal.close();
+            }
+        }
+    }
+
+    private final class Connexion {
+        private final SocketChannel canal;
+        private final ByteBuffer entree = ByteBuffer.allocate(profondeur * Protocole.TAILLE_REPONSE);
+        private final ByteBuffer sortie = ByteBuffer.allocate(profondeur * Protocole.TAILLE_REQUETE);
+        /** Instants d'envoi et identifiants des requêtes en vol, dans l'ordre où les réponses arriveront. */
+        private final long[] envois = new long[profondeur];
+        private final int[] idsAttendus = new int[profondeur];
+        private final SplittableRandom aleatoire;
+        private int tete;
+        private int enVol;
+        private int idSuivant;
+
+        private Connexion(int graine) throws IOException {
+            canal = SocketChannel.open(adresse);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            canal.configureBlocking(false);
+            aleatoire = new SplittableRandom(graine);
+        }
+
+        private void remplir(long maintenant) {
+            while (enVol < profondeur) {
+                byte operation = (byte) aleatoire.nextInt(Protocole.OP_CREDITER, Protocole.OP_SOLDE + 1);
+                int numeroCompte = aleatoire.nextInt(1, nombreComptes + 1);
+                int numeroBeneficiaire = aleatoire.nextInt(1, nombreComptes + 1);
+                double montant = aleatoire.nextInt(1, 101);
+                int position = (tete + enVol) % profondeur;
+                idsAttendus[position] = idSuivant;
+                envois[position] = maintenant;
+                Protocole.ecrireRequete(sortie, operation, idSuivant++,
+                                        numeroCompte, montant, numeroBeneficiaire);
+                enVol++;
+            }
+        }
+
+        private void envoyer(Selector selecteur) throws IOException {
+            sortie.flip();
+            canal.write(sortie);
+            sortie.compact();
+            int interet = sortie.position() > 0
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ;
+            canal.keyFor(selecteur).interestOps(interet);
+        }
+
+        /**
+         * Consomme les réponses complètes et retourne le nombre d'opérations refusées.
+         * Une réponse hors de l'ordre des requêtes viole le protocole et interrompt la mesure.
+         */
+        private int recevoir(long maintenant, Latences latences) throws IOException {
+            int refus = 0;
+            entree.flip();
+            while (entree.remaining() >= Protocole.TAILLE_REPONSE) {
+                int idRequete = entree.getInt();
+                if (idRequete != idsAttendus[tete]) {
+                    throw new IOException("Réponse " + idRequete + " reçue alors que la réponse "
+                                          + idsAttendus[tete] + " était attendue");
+                }
+                byte statut = entree.get();
+                entree.getDouble();
+                if (statut != Protocole.STATUT_OK) {
+                    refus++;
+                }
+                latences.ajouter(maintenant - envois[tete]);
+                tete = (tete + 1) % profondeur;
+                enVol--;
+            }
+            entree.compact();
+            return refus;
+        }
+    }
+
+    /**
+     * Histogramme des latences à seaux logarithmiques : chaque puissance de deux est
+     * découpée en {@code SOUS_SEAUX} seaux, soit une erreur relative inférieure à 1,6 %
+     * pour une mémoire fixe, quelle que soit la durée de la mesure.
+     */
+    private static final class Latences {
+        private static final int BITS_SOUS_SEAUX = 6;
+        private static final int SOUS_SEAUX = 1 << BITS_SOUS_SEAUX;
+        private static final int NOMBRE_SEAUX = (Long.SIZE - BITS_SOUS_SEAUX + 1) * SOUS_SEAUX;
+
+        private final long[] seaux = new long[NOMBRE_SEAUX];
+        private long total;
+
+        private void ajouter(long nanos) {
+            seaux[indice(Math.max(0, nanos))]++;
+            total++;
+        }
+
+        private static int indice(long nanos) {
+            if (nanos < SOUS_SEAUX) {
+                return (int) nanos;
+            }
+            int decalage = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - BITS_SOUS_SEAUX;
+            int mantisse = (int) (nanos >>> decalage) - SOUS_SEAUX;
+            return (decalage + 1) * SOUS_SEAUX + mantisse;
+        }
+
+        /** Plus grande valeur, en nanosecondes, rangée dans le seau {@code indice}. */
+        private static long borneSuperieure(int indice) {
+            if (indice < SOUS_SEAUX) {
+                return indice;
+            }
+            int decalage = indice / SOUS_SEAUX - 1;
+            long mantisse = indice % SOUS_SEAUX + SOUS_SEAUX;
+            return ((mantisse + 1) << decalage) - 1;
+        }
+
+        private long percentile(double percentile) {
+            long rang = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long cumul = 0;
+            for (int i = 0; i < seaux.length; i++) {
+                cumul += seaux[i];
+                if (cumul >= rang) {
+                    return borneSuperieure(i);
+                }
+            }
+            return 0;
+        }
+    }
+
+    public static final class Resultat {
+
+        private final int connexions;
+        private final int profondeur;
+        private final Latences latences;
+        private final long refus;
+        private final long dureeNanos;
+
+        private Resultat(int connexions, int profondeur, Latences latences, long refus, long dureeNanos) {
+            this.connexions = connexions;
+            this.profondeur = profondeur;
+            this.latences = latences;
+            this.refus = refus;
+            this.dureeNanos = dureeNanos;
+        }
+
+        public long getOperations() {
+            return latences.total;
+        }
+
+        public long getRefus() {
+            return refus;
+        }
+
+        public double getOperationsParSeconde() {
+            return latences.total * 1e9 / dureeNanos;
+        }
+
+        public double getLatenceMicros(double percentile) {
+            if (latences.total == 0) {
+                return 0.0;
+            }
+            return latences.percentile(percentile) / 1_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%5d connexions x %3d en vol : %,12.0f ops/s - p50 %,9.1f µs - p99 %,9.1f µs (%d refus)",
+                                 connexions, profondeur, getOperationsParSeconde(),
+                                 getLatenceMicros(50), getLatenceMicros(99), refus);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Protocole binaire du serveur de comptes.
+ *
+ * <p>Les trames sont de taille fixe, ce qui permet au client d'enchaîner
+ * plusieurs requêtes sans attendre les réponses (pipelining) et au serveur
+ * de les découper sans en-tête de longueur. Les réponses sont renvoyées
+ * dans l'ordre des requêtes.
+ *
+ * <pre>
+ * Requête (21 octets) : operation(1) idRequete(4) numeroCompte(4) montant(8) numeroBeneficiaire(4)
+ * Réponse (13 octets) : idRequete(4) statut(1) solde(8)
+ * </pre>
+ *
+ * Le solde renvoyé est celui du compte {@code numeroCompte} après l'opération
+ * (ou inchangé si elle a été refusée). Les entiers sont en big-endian.
+ */
+public final class Protocole {
+
+    public static final int TAILLE_REQUETE = 21;
+    public static final int TAILLE_REPONSE = 13;
+
+    public static final byte OP_CREDITER = 1;
+    public static final byte OP_DEBITER = 2;
+    public static final byte OP_VIREMENT = 3;
+    public static final byte OP_SOLDE = 4;
+
+    public static final byte STATUT_OK = 0;
+    /** Opération rejetée par les règles de {@link Compte} (montant, découvert, débit max). */
+    public static final byte STATUT_REFUSE = 1;
+    public static final byte STATUT_COMPTE_INCONNU = 2;
+    public static final byte STATUT_OPERATION_INCONNUE = 3;
+
+    private Protocole() {
+    }
+
+    public static void ecrireRequete(ByteBuffer tampon, byte operation, int idRequete,
+                                     int numeroCompte, double montant, int numeroBeneficiaire) {
+        tampon.put(operation);
+        tampon.putInt(idRequete);
+        tampon.putInt(numeroCompte);
+        tampon.putDouble(montant);
+        tampon.putInt(numeroBeneficiaire);
+    }
+
+    public static void ecrireReponse(ByteBuffer tampon, int idRequete, byte statut, double solde) {
+        tampon.putInt(idRequete);
+        tampon.put(statut);
+        tampon.putDouble(solde);
+    }
+}
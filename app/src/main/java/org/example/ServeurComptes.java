@@ -0,0 +1,316 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Serveur TCP exposant les opérations de {@link Compte} via le {@link Protocole} binaire.
+ *
+ * <p>Un seul thread gère toutes les connexions avec un {@link Selector} non bloquant.
+ * Les comptes ne sont donc jamais manipulés en concurrence : ils doivent être
+ * ajoutés avant {@link #demarrer(int)} et ne sont plus touchés ensuite que par ce thread.
+ *
+ * <p>Toutes les requêtes complètes reçues en une lecture sont traitées d'un coup
+ * et leurs réponses renvoyées en une seule écriture.
+ */
+public class ServeurComptes implements AutoCloseable {
+
+    private static final int TAILLE_TAMPON = 64 * 1024;
+    private static final int FILE_ATTENTE_CONNEXIONS = 2048;
+    private static final long PAUSE_ACCEPTATION_MILLIS = 100;
+
+    private final Map<Integer, Compte> comptes = new HashMap<>();
+    private Selector selecteur;
+    private ServerSocketChannel canalEcoute;
+    private Thread boucle;
+    private volatile boolean actif;
+    /** Instant ({@link System#nanoTime()}) où reprendre l'acceptation, 0 si elle n'est pas suspendue. */
+    private long repriseAcceptation;
+
+    public void ajouterCompte(Compte compte) {
+        if (compte == null) {
+            throw new IllegalArgumentException("Le compte ne peut pas être null");
+        }
+        if (boucle != null) {
+            throw new IllegalStateException("Impossible d'ajouter un compte après le démarrage du serveur");
+        }
+        comptes.put(compte.getNumeroCompte(), compte);
+    }
+
+    /**
+     * Ouvre le port d'écoute sur l'interface de bouclage locale et lance la boucle
+     * de traitement dans un thread dédié. Le port 0 choisit un port libre,
+     * consultable ensuite avec {@link #getPort()}.
+     */
+    public void demarrer(int port) throws IOException {
+        demarrer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Ouvre le port d'écoute sur l'adresse donnée. Le protocole n'a pas
+     * d'authentification : n'exposer le serveur hors de la machine qu'en connaissance de cause.
+     */
+    public void demarrer(InetSocketAddress adresse) throws IOException {
+        if (boucle != null) {
+            throw new IllegalStateException("Le serveur est déjà démarré");
+        }
+        Selector nouveauSelecteur = Selector.open();
+        ServerSocketChannel nouveauCanal = null;
+        try {
+            nouveauCanal = ServerSocketChannel.open();
+            nouveauCanal.bind(adresse, FILE_ATTENTE_CONNEXIONS);
+            nouveauCanal.configureBlocking(false);
+            nouveauCanal.register(nouveauSelecteur, SelectionKey.OP_ACCEPT);
+        } catch (IOException | RuntimeException e) {
+            // Sans boucle démarrée, close() ne libérerait pas ces ressources.
+            if (nouveauCanal != null) {
+                fermerSilencieusement(nouveauCanal, e);
+            }
+            fermerSilencieusement(nouveauSelecteur, e);
+            throw e;
+        }
+        selecteur = nouveauSelecteur;
+        canalEcoute = nouveauCanal;
+        actif = true;
+        boucle = new Thread(this::boucler, "serveur-comptes");
+        boucle.start();
+    }
+
+    public int getPort() {
+        return canalEcoute.socket().getLocalPort();
+    }
+
+    public void attendreArret() throws InterruptedException {
+        boucle.join();
+    }
+
+    @Override
+    public void close() {
+        if (boucle == null) {
+            return;
+        }
+        actif = false;
+        selecteur.wakeup();
+        try {
+            boucle.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void boucler() {
+        try {
+            while (actif) {
+                attendreEvenements();
+                Iterator<SelectionKey> cles = selecteur.selectedKeys().iterator();
+                while (cles.hasNext()) {
+                    SelectionKey cle = cles.next();
+                    cles.remove();
+                    if (!cle.isValid()) {
+                        continue;
+                    }
+                    if (cle.isAcceptable()) {
+                        accepter();
+                    } else {
+                        servir(cle);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fermerTout();
+        }
+    }
+
+    /**
+     * Attend le prochain événement. Pendant une suspension de l'acceptation, l'attente
+     * est bornée par l'instant de reprise, puis l'écoute est réactivée.
+     */
+    private void attendreEvenements() throws IOException {
+        if (repriseAcceptation == 0) {
+            selecteur.select();
+            return;
+        }
+        long restant = repriseAcceptation - System.nanoTime();
+        if (restant > 0) {
+            selecteur.select(Math.max(1, restant / 1_000_000L));
+        }
+        if (System.nanoTime() - repriseAcceptation >= 0) {
+            repriseAcceptation = 0;
+            canalEcoute.keyFor(selecteur).interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    /**
+     * Un échec sur une connexion entrante n'abandonne que cette connexion : seul un
+     * échec de {@code select()} arrête le serveur. Si {@code accept()} lui-même échoue
+     * (par exemple faute de descripteurs libres), l'acceptation est suspendue pendant
+     * {@value #PAUSE_ACCEPTATION_MILLIS} ms, sans quoi la connexion en attente
+     * réveillerait la boucle indéfiniment.
+     */
+    private void accepter() {
+        SocketChannel canal;
+        try {
+            canal = accepterConnexion();
+        } catch (IOException e) {
+            canalEcoute.keyFor(selecteur).interestOps(0);
+            repriseAcceptation = System.nanoTime() + PAUSE_ACCEPTATION_MILLIS * 1_000_000L;
+            return;
+        }
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            canal.register(selecteur, SelectionKey.OP_READ, new Connexion());
+        } catch (IOException e) {
+            try {
+                canal.close();
+            } catch (IOException ignoree) {
+                // La connexion est abandonnée de toute façon.
+            }
+        }
+    }
+
+    SocketChannel accepterConnexion() throws IOException {
+        return canalEcoute.accept();
+    }
+
+    private void servir(SelectionKey cle) {
+        SocketChannel canal = (SocketChannel) cle.channel();
+        Connexion connexion = (Connexion) cle.attachment();
+        try {
+            if (cle.isReadable() && canal.read(connexion.entree) < 0) {
+                fermer(cle);
+                return;
+            }
+            traiter(cle, canal, connexion);
+        } catch (IOException e) {
+            fermer(cle);
+        }
+    }
+
+    /**
+     * Exécute les requêtes complètes en attente puis envoie les réponses accumulées.
+     * Tant que des réponses restent à écrire, la lecture est suspendue pour ne pas
+     * accumuler de travail face à un client qui ne lit pas.
+     */
+    private void traiter(SelectionKey cle, SocketChannel canal, Connexion connexion) throws IOException {
+        ByteBuffer entree = connexion.entree;
+        ByteBuffer sortie = connexion.sortie;
+        entree.flip();
+        while (entree.remaining() >= Protocole.TAILLE_REQUETE
+                && sortie.remaining() >= Protocole.TAILLE_REPONSE) {
+            executer(entree, sortie);
+        }
+        entree.compact();
+
+        sortie.flip();
+        canal.write(sortie);
+        if (sortie.hasRemaining()) {
+            sortie.compact();
+            cle.interestOps(SelectionKey.OP_WRITE);
+        } else {
+            sortie.clear();
+            cle.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void executer(ByteBuffer entree, ByteBuffer sortie) {
+        byte operation = entree.get();
+        int idRequete = entree.getInt();
+        int numeroCompte = entree.getInt();
+        double montant = entree.getDouble();
+        int numeroBeneficiaire = entree.getInt();
+
+        Compte compte = comptes.get(numeroCompte);
+        if (compte == null) {
+            Protocole.ecrireReponse(sortie, idRequete, Protocole.STATUT_COMPTE_INCONNU, 0.0);
+            return;
+        }
+        byte statut = Protocole.STATUT_OK;
+        try {
+            switch (operation) {
+                case Protocole.OP_CREDITER:
+                    compte.crediter(montantFini(montant));
+                    break;
+                case Protocole.OP_DEBITER:
+                    compte.debiter(montantFini(montant));
+                    break;
+                case Protocole.OP_VIREMENT:
+                    Compte beneficiaire = comptes.get(numeroBeneficiaire);
+                    if (beneficiaire == null) {
+                        statut = Protocole.STATUT_COMPTE_INCONNU;
+                    } else {
+                        compte.virement(montantFini(montant), beneficiaire);
+                    }
+                    break;
+                case Protocole.OP_SOLDE:
+                    break;
+                default:
+                    statut = Protocole.STATUT_OPERATION_INCONNUE;
+            }
+        } catch (IllegalArgumentException e) {
+            statut = Protocole.STATUT_REFUSE;
+        }
+        Protocole.ecrireReponse(sortie, idRequete, statut, compte.getSolde());
+    }
+
+    /**
+     * Compte ne rejette que les montants {@code <= 0} : NaN et l'infini passeraient
+     * ses contrôles et corrompraient le solde.
+     */
+    private static double montantFini(double montant) {
+        if (!Double.isFinite(montant)) {
+            throw new IllegalArgumentException("Le montant doit être un nombre fini");
+        }
+        return montant;
+    }
+
+    private void fermer(SelectionKey cle) {
+        cle.cancel();
+        try {
+            cle.channel().close();
+        } catch (IOException e) {
+            // La connexion est abandonnée de toute façon.
+        }
+    }
+
+    private void fermerTout() {
+        for (SelectionKey cle : selecteur.keys()) {
+            fermer(cle);
+        }
+        try {
+            selecteur.close();
+        } catch (IOException e) {
+            // Rien à libérer de plus.
+        }
+    }
+
+    private static void fermerSilencieusement(Closeable ressource, Exception cause) {
+        try {
+            ressource.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static final class Connexion {
+        private final ByteBuffer entree = ByteBuffer.allocate(TAILLE_TAMPON);
+        private final ByteBuffer sortie = ByteBuffer.allocate(TAILLE_TAMPON);
+    }
+}
@@ -0,0 +1,246 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests du serveur de comptes")
+@Timeout(10)
+public class ServeurComptesTest {
+
+    private ServeurComptes serveur;
+    private SocketChannel canal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serveur = new ServeurComptes();
+        serveur.ajouterCompte(new Compte(1, new Titulaire("Dupont", "Jean", "Paris"), 1000.0, 800.0, 1000.0));
+        serveur.ajouterCompte(new Compte(2, new Titulaire("Martin", "Sophie", "Lyon"), 500.0, 800.0, 1000.0));
+        serveur.demarrer(0);
+        canal = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), serveur.getPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        canal.close();
+        serveur.close();
+    }
+
+    private void envoyer(ByteBuffer requetes) throws IOException {
+        while (requetes.hasRemaining()) {
+            canal.write(requetes);
+        }
+    }
+
+    private ByteBuffer recevoir(int nombreReponses) throws IOException {
+        ByteBuffer reponses = ByteBuffer.allocate(nombreReponses * Protocole.TAILLE_REPONSE);
+        while (reponses.hasRemaining()) {
+            assertTrue(canal.read(reponses) >= 0, "le serveur a fermé la connexion");
+        }
+        reponses.flip();
+        return reponses;
+    }
+
+    private ByteBuffer envoyerEtRecevoir(ByteBuffer requetes, int nombreReponses) throws IOException {
+        requetes.flip();
+        envoyer(requetes);
+        return recevoir(nombreReponses);
+    }
+
+    private void verifierReponse(ByteBuffer reponses, int idRequete, byte statut, double solde) {
+        assertEquals(idRequete, reponses.getInt());
+        assertEquals(statut, reponses.get());
+        assertEquals(solde, reponses.getDouble(), 0.001);
+    }
+
+    @DisplayName("Requêtes pipelinées traitées dans l'ordre")
+    @Test
+    void testPipeline() throws IOException {
+        //Given
+        ByteBuffer requetes = ByteBuffer.allocate(5 * Protocole.TAILLE_REQUETE);
+        Protocole.ecrireRequete(requetes, Protocole.OP_CREDITER, 10, 1, 200.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_DEBITER, 11, 1, 100.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_VIREMENT, 12, 1, 600.0, 2);
+        Protocole.ecrireRequete(requetes, Protocole.OP_SOLDE, 13, 2, 0.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_SOLDE, 14, 1, 0.0, 0);
+        //When
+        ByteBuffer reponses = envoyerEtRecevoir(requetes, 5);
+        //Then
+        verifierReponse(reponses, 10, Protocole.STATUT_OK, 1200.0);
+        verifierReponse(reponses, 11, Protocole.STATUT_OK, 1100.0);
+        verifierReponse(reponses, 12, Protocole.STATUT_OK, 500.0);
+        verifierReponse(reponses, 13, Protocole.STATUT_OK, 1100.0);
+        verifierReponse(reponses, 14, Protocole.STATUT_OK, 500.0);
+    }
+
+    @DisplayName("Erreurs signalées sans interrompre la connexion")
+    @Test
+    void testErreurs() throws IOException {
+        //Given
+        ByteBuffer requetes = ByteBuffer.allocate(10 * Protocole.TAILLE_REQUETE);
+        Protocole.ecrireRequete(requetes, Protocole.OP_DEBITER, 1, 1, 1500.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_CREDITER, 2, 1, -10.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_SOLDE, 3, 99, 0.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_VIREMENT, 4, 1, 10.0, 99);
+        Protocole.ecrireRequete(requetes, (byte) 42, 5, 1, 0.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_CREDITER, 6, 1, Double.NaN, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_CREDITER, 7, 1, Double.POSITIVE_INFINITY, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_VIREMENT, 8, 1, Double.NaN, 2);
+        Protocole.ecrireRequete(requetes, Protocole.OP_SOLDE, 9, 1, Double.NaN, 0);
+        Protocole.ecrireRequete(requetes, (byte) 42, 10, 1, Double.NaN, 0);
+        //When
+        ByteBuffer reponses = envoyerEtRecevoir(requetes, 10);
+        //Then
+        verifierReponse(reponses, 1, Protocole.STATUT_REFUSE, 1000.0);
+        verifierReponse(reponses, 2, Protocole.STATUT_REFUSE, 1000.0);
+        verifierReponse(reponses, 3, Protocole.STATUT_COMPTE_INCONNU, 0.0);
+        verifierReponse(reponses, 4, Protocole.STATUT_COMPTE_INCONNU, 1000.0);
+        verifierReponse(reponses, 5, Protocole.STATUT_OPERATION_INCONNUE, 1000.0);
+        verifierReponse(reponses, 6, Protocole.STATUT_REFUSE, 1000.0);
+        verifierReponse(reponses, 7, Protocole.STATUT_REFUSE, 1000.0);
+        verifierReponse(reponses, 8, Protocole.STATUT_REFUSE, 1000.0);
+        verifierReponse(reponses, 9, Protocole.STATUT_OK, 1000.0);
+        verifierReponse(reponses, 10, Protocole.STATUT_OPERATION_INCONNUE, 1000.0);
+    }
+
+    @DisplayName("Trame de requête reçue en deux lectures")
+    @Test
+    void testTrameDecoupee() throws IOException, InterruptedException {
+        //Given
+        ByteBuffer requetes = ByteBuffer.allocate(2 * Protocole.TAILLE_REQUETE);
+        Protocole.ecrireRequete(requetes, Protocole.OP_CREDITER, 1, 1, 50.0, 0);
+        Protocole.ecrireRequete(requetes, Protocole.OP_DEBITER, 2, 1, 20.0, 0);
+        requetes.flip();
+        //When
+        envoyer(requetes.duplicate().limit(Protocole.TAILLE_REQUETE + 10));
+        Thread.sleep(100);
+        envoyer(requetes.position(Protocole.TAILLE_REQUETE + 10));
+        ByteBuffer reponses = recevoir(2);
+        //Then
+        verifierReponse(reponses, 1, Protocole.STATUT_OK, 1050.0);
+        verifierReponse(reponses, 2, Protocole.STATUT_OK, 1030.0);
+    }
+
+    @DisplayName("Lot plus grand qu'un tampon, lu tardivement par le client")
+    @Test
+    void testGrandLot() throws Exception {
+        //Given
+        int nombreRequetes = 1_000_000;
+        canal.close();
+        canal = SocketChannel.open();
+        canal.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+        canal.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), serveur.getPort()));
+        ByteBuffer requetes = ByteBuffer.allocate(nombreRequetes * Protocole.TAILLE_REQUETE);
+        for (int i = 0; i < nombreRequetes; i++) {
+            Protocole.ecrireRequete(requetes, Protocole.OP_CREDITER, i, 1, 1.0, 0);
+        }
+        requetes.flip();
+        //When
+        Thread emetteur = new Thread(() -> {
+            try {
+                envoyer(requetes);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        emetteur.start();
+        // Le client ne lit pas encore : le serveur doit suspendre ses lectures et attendre OP_WRITE.
+        Thread.sleep(200);
+        ByteBuffer reponses = recevoir(nombreRequetes);
+        emetteur.join();
+        //Then
+        for (int i = 0; i < nombreRequetes; i++) {
+            verifierReponse(reponses, i, Protocole.STATUT_OK, 1001.0 + i);
+        }
+    }
+
+    @DisplayName("Acceptation reprise après un échec de accept()")
+    @Test
+    void testRepriseAcceptation() throws IOException {
+        //Given
+        ServeurComptes serveurDefaillant = new ServeurComptes() {
+            private boolean echoue;
+
+            @Override
+            SocketChannel accepterConnexion() throws IOException {
+                if (!echoue) {
+                    echoue = true;
+                    throw new IOException("Too many open files");
+                }
+                return super.accepterConnexion();
+            }
+        };
+        serveurDefaillant.ajouterCompte(new Compte(1, new Titulaire("Dupont", "Jean", "Paris"), 1000.0, 800.0, 1000.0));
+        try {
+            serveurDefaillant.demarrer(0);
+            canal.close();
+            canal = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), serveurDefaillant.getPort()));
+            ByteBuffer requetes = ByteBuffer.allocate(Protocole.TAILLE_REQUETE);
+            Protocole.ecrireRequete(requetes, Protocole.OP_SOLDE, 1, 1, 0.0, 0);
+            //When
+            ByteBuffer reponses = envoyerEtRecevoir(requetes, 1);
+            //Then
+            verifierReponse(reponses, 1, Protocole.STATUT_OK, 1000.0);
+        } finally {
+            serveurDefaillant.close();
+        }
+    }
+
+    @DisplayName("Échec du démarrage sur un port déjà occupé")
+    @Test
+    void testDemarrageSurPortOccupe() throws IOException {
+        //Given
+        ServeurComptes autre = new ServeurComptes();
+        autre.ajouterCompte(new Compte(1, new Titulaire("Dupont", "Jean", "Paris"), 1000.0, 800.0, 1000.0));
+        try {
+            //Then
+            assertThrows(IOException.class, () -> {
+                //When
+                autre.demarrer(serveur.getPort());
+            });
+            autre.demarrer(0);
+            canal.close();
+            canal = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), autre.getPort()));
+            ByteBuffer requetes = ByteBuffer.allocate(Protocole.TAILLE_REQUETE);
+            Protocole.ecrireRequete(requetes, Protocole.OP_SOLDE, 1, 1, 0.0, 0);
+            verifierReponse(envoyerEtRecevoir(requetes, 1), 1, Protocole.STATUT_OK, 1000.0);
+        } finally {
+            autre.close();
+        }
+    }
+
+    @DisplayName("Ajout de compte impossible après démarrage")
+    @Test
+    void testAjoutApresDemarrage() {
+        //Given
+        Compte compte = new Compte(3, new Titulaire("Test", "User", "Adresse"));
+        //Then
+        assertThrows(IllegalStateException.class, () -> {
+            //When
+            serveur.ajouterCompte(compte);
+        });
+    }
+
+    @DisplayName("Client de charge contre le serveur")
+    @Test
+    void testClientCharge() throws IOException {
+        //Given
+        ClientCharge client = new ClientCharge(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), serveur.getPort()), 4, 8, 2);
+        //When
+        ClientCharge.Resultat resultat = client.executer(200);
+        //Then
+        assertTrue(resultat.getOperations() > 0);
+        assertTrue(resultat.getOperationsParSeconde() > 0);
+        assertTrue(resultat.getLatenceMicros(99) >= resultat.getLatenceMicros(50));
+    }
+}